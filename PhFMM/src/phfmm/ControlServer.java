@@ -0,0 +1,483 @@
+package phfmm;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Joseph Malandruccolo
+ * Local control server for one or more Phoenix Fictitious Manufacturing Machines
+ * The server listens on the loopback interface only and exposes the UserInterface facade through a line protocol
+ *
+ * Each request is one line of text: <tag> <machine> <command> [arguments]
+ * 	SET <psi> <amps>	-	setControlValues
+ * 	GET					-	getControlValues
+ * 	RUN <seconds>		-	manualRun
+ * 	RECIPE <path>		-	executeRecipe
+ *
+ * Each response is one line of text: <tag> <status> [payload]
+ * 	OK			-	SET and GET completed, payload holds the control values
+ * 	ACCEPTED	-	the arguments of RUN or RECIPE parsed and the run was queued, exactly one DONE or ERR line with the same tag follows
+ * 	DONE		-	RUN or RECIPE completed, payload is <result> <run id> <log file or -> <duration ms> [detail]
+ * 				result is a RunResult.Status name, detail is the mismatch for a BAD_PART recipe or the reason for INVALID_RECIPE and HARDWARE_FAILURE
+ * 				a verbose server sends the full human readable RunResult instead
+ * 	ERR			-	the request could not be handled, payload holds the reason
+ * Newlines in a payload are sent as the two characters \n and backslashes as \\
+ *
+ * Only the form of a request is checked before ACCEPTED, a recipe file that is missing or invalid is reported as DONE INVALID_RECIPE
+ * ERR follows ACCEPTED only if the machine throws an unexpected exception
+ * A connection may have at most MAX_REQUESTS_IN_FLIGHT requests waiting on the machines, further requests are answered with ERR
+ * A request line longer than MAX_LINE_CHARS is answered with ERR tagged '-', later input is ignored,
+ * and the connection is closed once every request already in flight has been answered
+ *
+ * Clients may pipeline requests without waiting for a response, tags are echoed so responses can be matched
+ * A client that stops reading its responses is no longer read from until it catches up
+ * Requests for the same machine are executed in the order received, requests for different machines run concurrently
+ *
+ */
+public class ControlServer {
+
+	//=====================================================================
+	//	=>	CONSTANTS
+	//=====================================================================
+	public static final int DEFAULT_PORT = 5150;
+	public static final int DEFAULT_MACHINE_COUNT = 1;
+
+	public static final String kSET_COMMAND = "SET";
+	public static final String kGET_COMMAND = "GET";
+	public static final String kRUN_COMMAND = "RUN";
+	public static final String kRECIPE_COMMAND = "RECIPE";
+
+	public static final String kOK_STATUS = "OK";
+	public static final String kACCEPTED_STATUS = "ACCEPTED";
+	public static final String kDONE_STATUS = "DONE";
+	public static final String kERROR_STATUS = "ERR";
+
+	public static final int MAX_LINE_CHARS = 1024;
+	public static final int MAX_REQUESTS_IN_FLIGHT = 64;
+	public static final int MAX_QUEUED_RESPONSES = 256;		//	reading pauses while this many responses wait to be sent
+
+	private static final int READ_BUFFER_BYTES = 4096;
+	private static final Charset PROTOCOL_CHARSET = Charset.forName("US-ASCII");
+
+
+	//=====================================================================
+	//	=>	PROPERTIES
+	//=====================================================================
+	private final UserInterface[] machines;					//	one user interface facade per machine
+	private final ExecutorService[] machineExecutors;		//	serializes the requests sent to each machine
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final ConcurrentLinkedQueue<Connection> connectionsWithOutput;	//	connections waiting for OP_WRITE interest
+	private final boolean isVerbose;						//	DONE carries the full RunResult text instead of the compact fields
+	private volatile boolean isRunning;
+
+
+	//=====================================================================
+	//	=>	CONSTRUCTOR
+	//=====================================================================
+	/**
+	 * Open a control server on the loopback interface
+	 * @param port - the port to listen on, 0 picks an ephemeral port
+	 * @param machineCount - the number of machines to expose, addressed as 0 to machineCount - 1
+	 * @param isVerbose - true to send the full human readable RunResult in DONE lines
+	 * @throws IOException if the server socket cannot be opened
+	 */
+	public ControlServer(int port, int machineCount, boolean isVerbose) throws IOException {
+
+		if (machineCount < 1) throw new IllegalArgumentException("a control server needs at least one machine");
+
+		this.machines = new UserInterface[machineCount];
+		this.machineExecutors = new ExecutorService[machineCount];
+		for (int i = 0; i < machineCount; i++) {
+			this.machines[i] = new UserInterface();
+			this.machineExecutors[i] = Executors.newSingleThreadExecutor();
+		}
+
+		this.connectionsWithOutput = new ConcurrentLinkedQueue<Connection>();
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+		this.isVerbose = isVerbose;
+		this.isRunning = true;
+
+	}
+
+
+	public ControlServer(int port, int machineCount) throws IOException { this(port, machineCount, false); }
+
+
+	public ControlServer() throws IOException { this(DEFAULT_PORT, DEFAULT_MACHINE_COUNT); }
+
+
+	//=====================================================================
+	//	=>	PUBLIC API
+	//=====================================================================
+	/**
+	 * @return - the port this server is listening on
+	 */
+	public int getPort() { return this.serverChannel.socket().getLocalPort(); }
+
+
+	/**
+	 * Serve requests on the calling thread until close is called
+	 * @throws IOException if the selector fails
+	 */
+	public void serve() throws IOException {
+
+		try { this.selectUntilClosed(); }
+		finally {
+
+			//	only the selector thread touches the channels and the selector, so cleanup happens here and not in close
+			for (ExecutorService executor : this.machineExecutors) executor.shutdown();
+			for (SelectionKey key : this.selector.keys()) {
+				try { key.channel().close(); }
+				catch (IOException e) { System.out.println("Control server failed to close a channel"); }
+			}
+			this.serverChannel.close();
+			this.selector.close();
+		}
+
+	}
+
+
+	/**
+	 * Stop serving, runs already queued on the machines are allowed to finish
+	 * Safe to call from any thread, serve returns once the selector thread has cleaned up
+	 */
+	public void close() {
+
+		this.isRunning = false;
+		this.selector.wakeup();
+
+	}
+
+
+	//=====================================================================
+	//	=>	PRIVATE METHODS
+	//=====================================================================
+	private void selectUntilClosed() throws IOException {
+
+		while (this.isRunning) {
+
+			this.selector.select();
+			if (!this.isRunning) break;
+
+			//	pick up responses produced by the machine threads
+			Connection pending;
+			while ((pending = this.connectionsWithOutput.poll()) != null) {
+				if (pending.key.isValid()) pending.key.interestOps(pending.key.interestOps() | SelectionKey.OP_WRITE);
+			}
+
+			Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				try {
+					if (!key.isValid()) continue;
+					if (key.isAcceptable()) this.accept();
+					if (key.isValid() && key.isReadable()) this.read((Connection) key.attachment());
+					if (key.isValid() && key.isWritable()) this.write((Connection) key.attachment());
+				}
+				catch (IOException e) {
+					//	a failing client must not take the server down with it
+					this.disconnect(key);
+				}
+			}
+		}
+
+	}
+
+
+	private void accept() throws IOException {
+
+		SocketChannel client = this.serverChannel.accept();
+		if (client == null) return;
+
+		client.configureBlocking(false);
+		SelectionKey key = client.register(this.selector, SelectionKey.OP_READ);
+		key.attach(new Connection(key));
+
+	}
+
+
+	private void read(Connection connection) throws IOException {
+
+		SocketChannel client = (SocketChannel) connection.key.channel();
+		connection.readBuffer.clear();
+
+		int bytesRead = client.read(connection.readBuffer);
+		if (bytesRead < 0) {
+			this.disconnect(connection.key);
+			return;
+		}
+		if (connection.closeAfterOutput) return;	//	discard anything sent after an oversized line
+
+		//	dispatch every complete line, a partial line waits for the next read
+		connection.readBuffer.flip();
+		while (connection.readBuffer.hasRemaining()) {
+
+			char c = (char) connection.readBuffer.get();
+			if (c == '\n') {
+				String line = connection.partialLine.toString().trim();
+				connection.partialLine.setLength(0);
+				if (line.length() > 0) this.dispatch(connection, line);
+			}
+			else if (c != '\r') {
+				if (connection.partialLine.length() >= MAX_LINE_CHARS) {
+					connection.partialLine.setLength(0);
+					connection.closeAfterOutput = true;
+					connection.key.interestOps(SelectionKey.OP_WRITE);
+					connection.respond("-", kERROR_STATUS, "request line longer than " + MAX_LINE_CHARS + " characters");
+					return;
+				}
+				connection.partialLine.append(c);
+			}
+		}
+
+		//	a client that does not read its responses stops being read from, write resumes reading once the queue drains
+		if (connection.queuedResponses() >= MAX_QUEUED_RESPONSES) {
+			connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+		}
+
+	}
+
+
+	private void write(Connection connection) throws IOException {
+
+		SocketChannel client = (SocketChannel) connection.key.channel();
+
+		synchronized (connection.output) {
+
+			while (!connection.output.isEmpty()) {
+				ByteBuffer head = connection.output.getFirst();
+				client.write(head);
+				if (head.hasRemaining()) return;	//	socket is full, wait for the next OP_WRITE
+				connection.output.removeFirst();
+			}
+
+			if (!connection.closeAfterOutput) connection.key.interestOps(SelectionKey.OP_READ);
+			else if (connection.requestsInFlight.get() == 0) this.disconnect(connection.key);
+			else connection.key.interestOps(0);		//	wait for the answers still in flight, respond asks for OP_WRITE again
+		}
+
+	}
+
+
+	private void disconnect(SelectionKey key) {
+
+		key.cancel();
+		try { key.channel().close(); }
+		catch (IOException e) { System.out.println("Control server failed to close client connection"); }
+
+	}
+
+
+	/**
+	 * Parse one request line and hand it to the machine it addresses
+	 * @param connection - the connection the request arrived on
+	 * @param line - the request, without its line terminator
+	 */
+	private void dispatch(final Connection connection, String line) {
+
+		final String[] tokens = line.split(" ", 4);
+		final String tag = tokens[0];
+
+		if (tokens.length < 3) {
+			connection.respond(tag, kERROR_STATUS, "expected <tag> <machine> <command> [arguments]");
+			return;
+		}
+
+		final int machineIndex;
+		try { machineIndex = Integer.parseInt(tokens[1]); }
+		catch (NumberFormatException e) {
+			connection.respond(tag, kERROR_STATUS, tokens[1] + " - is an invalid machine");
+			return;
+		}
+		if (machineIndex < 0 || machineIndex >= this.machines.length) {
+			connection.respond(tag, kERROR_STATUS, tokens[1] + " - is an invalid machine");
+			return;
+		}
+
+		final String command = tokens[2];
+		final UserInterface ui = this.machines[machineIndex];
+		final boolean isLongRunning = command.equals(kRUN_COMMAND) || command.equals(kRECIPE_COMMAND);
+
+		//	check the arguments here, so a request is only ACCEPTED if it can actually be run
+		final int[] values;
+		final String recipeFilePath;
+		try {
+			if (command.equals(kSET_COMMAND)) {
+				String[] arguments = argument(tokens).split(" ");
+				if (arguments.length != 2) throw new IllegalArgumentException("expected SET <psi> <amps>");
+				values = new int[] { Integer.parseInt(arguments[0]), Integer.parseInt(arguments[1]) };
+				recipeFilePath = null;
+			}
+			else if (command.equals(kRUN_COMMAND)) {
+				values = new int[] { Integer.parseInt(argument(tokens)) };
+				recipeFilePath = null;
+			}
+			else if (command.equals(kRECIPE_COMMAND)) {
+				values = null;
+				recipeFilePath = argument(tokens);
+			}
+			else if (command.equals(kGET_COMMAND)) {
+				values = null;
+				recipeFilePath = null;
+			}
+			else throw new IllegalArgumentException(command + " - is an invalid command");
+		}
+		catch (IllegalArgumentException e) {
+			connection.respond(tag, kERROR_STATUS, String.valueOf(e.getMessage()));
+			return;
+		}
+
+		if (connection.requestsInFlight.get() >= MAX_REQUESTS_IN_FLIGHT) {
+			connection.respond(tag, kERROR_STATUS, "more than " + MAX_REQUESTS_IN_FLIGHT + " requests in flight");
+			return;
+		}
+
+		if (isLongRunning) connection.respond(tag, kACCEPTED_STATUS, null);
+
+		connection.requestsInFlight.incrementAndGet();
+		this.machineExecutors[machineIndex].execute(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try {
+
+					String result;
+					if (command.equals(kSET_COMMAND)) result = ui.setControlValues(values[0], values[1]);
+					else if (command.equals(kRUN_COMMAND)) result = describe(ui.manualRun(values[0]));
+					else if (command.equals(kRECIPE_COMMAND)) result = describe(ui.executeRecipe(recipeFilePath));
+					else result = ui.getControlValues();
+
+					connection.complete(tag, isLongRunning ? kDONE_STATUS : kOK_STATUS, result);
+
+				}
+				catch (RuntimeException e) {
+					connection.complete(tag, kERROR_STATUS, String.valueOf(e.getMessage()));
+				}
+			}
+		});
+
+	}
+
+
+	/**
+	 * Build the DONE payload for a run from its fields, or its full text on a verbose server
+	 * @param result - the result of the run
+	 * @return - <result> <run id> <log file or -> <duration ms> [detail]
+	 */
+	private String describe(RunResult result) {
+
+		if (this.isVerbose) return result.toString();
+
+		StringBuilder sb = new StringBuilder(96);
+		sb.append(result.getStatus()).append(' ').append(result.getRunId());
+		sb.append(' ').append(result.getLogFileName() == null ? "-" : result.getLogFileName());
+		sb.append(' ').append(result.getDurationNanos() / 1000000L);
+
+		if (result.getMismatch() != null) sb.append(' ').append(result.getMismatch());
+		else if (result.getFailureReason() != null) sb.append(' ').append(result.getFailureReason());
+
+		return sb.toString();
+
+	}
+
+
+	private static String argument(String[] tokens) {
+		if (tokens.length < 4 || tokens[3].trim().isEmpty()) throw new IllegalArgumentException(tokens[2] + " requires an argument");
+		return tokens[3].trim();
+	}
+
+
+	/**
+	 * Per client state, owned by the selector thread except for the output queue
+	 */
+	class Connection {
+
+		final SelectionKey key;
+		final ByteBuffer readBuffer;
+		final StringBuilder partialLine;
+		final LinkedList<ByteBuffer> output;
+		final AtomicInteger requestsInFlight;	//	requests handed to a machine and not yet answered
+		boolean closeAfterOutput;		//	set once the client has sent an oversized line
+
+		Connection(SelectionKey key) {
+			this.key = key;
+			this.readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+			this.partialLine = new StringBuilder(64);
+			this.output = new LinkedList<ByteBuffer>();
+			this.requestsInFlight = new AtomicInteger();
+		}
+
+		int queuedResponses() {
+			synchronized (this.output) { return this.output.size(); }
+		}
+
+		/**
+		 * Queue a response line and wake the selector to send it
+		 * Safe to call from any thread
+		 */
+		void respond(String tag, String status, String payload) {
+			this.enqueue(tag, status, payload);
+			this.signal();
+		}
+
+		/**
+		 * Queue the answer to a request that was in flight on a machine
+		 * The answer is queued before the request stops counting as in flight, so a closing connection never misses it
+		 */
+		void complete(String tag, String status, String payload) {
+			this.enqueue(tag, status, payload);
+			this.requestsInFlight.decrementAndGet();
+			this.signal();
+		}
+
+		private void enqueue(String tag, String status, String payload) {
+
+			StringBuilder sb = new StringBuilder(64);
+			sb.append(tag).append(' ').append(status);
+
+			if (payload != null) {
+				sb.append(' ');
+				for (int i = 0; i < payload.length(); i++) {
+					char c = payload.charAt(i);
+					if (c == '\n') sb.append("\\n");
+					else if (c == '\\') sb.append("\\\\");
+					else sb.append(c);
+				}
+			}
+			sb.append('\n');
+
+			synchronized (this.output) {
+				this.output.addLast(ByteBuffer.wrap(sb.toString().getBytes(PROTOCOL_CHARSET)));
+			}
+
+		}
+
+		private void signal() {
+			connectionsWithOutput.add(this);
+			selector.wakeup();
+		}
+	}
+
+}
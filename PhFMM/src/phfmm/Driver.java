@@ -1,14 +1,55 @@
 package phfmm;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * 
  * @author Joseph Malandruccolo
  * class to run the user interface
+ * run with the argument 'serve' to drive the machines through a ControlServer instead
+ * 	serve [port] [machine count] [verbose]
+ * run with the argument 'job' to run a single recipe, the launch mode for a fresh JVM per job
+ * 	job <recipe path> [--no-delay]
+ * 	--no-delay runs on hardware that does not wait a second per second of work
+ * 	exits with status 0 for a good part and 1 otherwise
+ * run with the argument 'train' to run one job per recipe mode on hardware with no delay and discard the log files
+ * 	this is the training run used to build the class data sharing archive, see warmstart.sh
  *
  */
 public class Driver {
 	
-	public static void main (String[] args) {
+	public static void main (String[] args) throws IOException {
+		
+		if (args.length > 0 && args[0].equals("serve")) {
+			int port = args.length > 1 ? Integer.parseInt(args[1]) : ControlServer.DEFAULT_PORT;
+			int machineCount = args.length > 2 ? Integer.parseInt(args[2]) : ControlServer.DEFAULT_MACHINE_COUNT;
+			boolean isVerbose = args.length > 3 && args[3].equals("verbose");
+			ControlServer server = new ControlServer(port, machineCount, isVerbose);
+			//	a long lived server pays the first-call costs once, before the first client request
+			MachineControl.warmUp();
+			System.out.println("Control server listening on port " + server.getPort());
+			server.serve();
+			return;
+		}
+		
+		if (args.length > 0 && args[0].equals("job")) {
+			if (args.length < 2) throw new IllegalArgumentException("usage: job <recipe path> [--no-delay]");
+			boolean noDelay = args.length > 2 && args[2].equals("--no-delay");
+			RunResult result = runJob(noDelay ? new Hardware(new IdealHardwareModel(), 0) : new Hardware(), args[1]);
+			System.out.println(result);
+			System.exit(result.isGoodPart() ? 0 : 1);
+		}
+		
+		if (args.length > 0 && args[0].equals("train")) {
+			String[] recipes = { UserInterface.RECIPE_1_PATH, UserInterface.RECIPE_2_PATH, UserInterface.RECIPE_3_PATH };
+			for (String recipe : recipes) {
+				RunResult result = runJob(new Hardware(new IdealHardwareModel(), 0), recipe);
+				System.out.println(result);
+				if (result.getLogFileName() != null) new File(result.getLogFileName()).delete();
+			}
+			return;
+		}
 		
 		UserInterface ui = new UserInterface();
 		System.out.println(ui.setControlValues(100, 100));
@@ -18,4 +59,18 @@ public class Driver {
 		System.out.println(ui.executeRecipe(UserInterface.RECIPE_3_PATH));
 		
 	}
+	
+	
+	/**
+	 * Run a single recipe on a given hardware instance, the path taken by the 'job' launch mode
+	 * StartupProbe calls this too, so its measurements describe what a job launch does
+	 * @param hardware - the hardware to run on
+	 * @param recipeFilePath - path to the recipe
+	 * @return - the result of the run
+	 */
+	public static RunResult runJob(Hardware hardware, String recipeFilePath) {
+		
+		return new UserInterface(new MachineControl(hardware)).executeRecipe(recipeFilePath);
+		
+	}
 }
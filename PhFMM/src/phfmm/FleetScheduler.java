@@ -0,0 +1,279 @@
+package phfmm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author Joseph Malandruccolo
+ * Schedules a work order of recipes across a pool of Hardware instances
+ * The scheduler builds one MachineControl per Hardware instance and runs every recipe through that MachineControl facade,
+ * it reads nothing from the Hardware itself except the wall clock length of a second of work
+ *
+ * Recipe runtimes are known before a recipe runs, so each priority class is packed in turn, highest class first:
+ * the class is first tried longest processing time first, each job going to the machine that will be free soonest, to minimize makespan
+ * if that order would break a deadline in the class, the class is instead packed earliest deadline first, followed by its jobs without a deadline longest first
+ * Jobs on the same machine run in the order they were assigned, so a higher priority class always starts before a lower one on that machine
+ *
+ * A recipe with runtime T performs T + 1 seconds of work, one for each second from 0 to T inclusive
+ * Every machine in the pool must take the same wall clock time per second of work, so seconds of work are comparable across the fleet
+ *
+ */
+public class FleetScheduler {
+
+	//=====================================================================
+	//	=>	PROPERTIES
+	//=====================================================================
+	private final List<Hardware> pool;					//	the hardware available to the work order
+	private final List<MachineControl> machines;		//	one machine control layer per hardware instance
+
+
+	//=====================================================================
+	//	=>	CONSTRUCTOR
+	//=====================================================================
+	/**
+	 * @param pool - the hardware to schedule onto, each instance is used by at most one job at a time and may appear only once
+	 */
+	public FleetScheduler(List<Hardware> pool) {
+
+		if (pool.isEmpty()) throw new IllegalArgumentException("a fleet needs at least one machine");
+		for (int i = 0; i < pool.size(); i++) {
+			Hardware hardware = pool.get(i);
+			for (int j = 0; j < i; j++) {
+				if (pool.get(j) == hardware) throw new IllegalArgumentException("the same hardware instance appears more than once in the fleet");
+			}
+			if (hardware.getMillisecondsPerSecond() != pool.get(0).getMillisecondsPerSecond()) {
+				throw new IllegalArgumentException("every machine in a fleet must take the same milliseconds per second of work");
+			}
+		}
+
+		this.pool = new ArrayList<Hardware>(pool);
+		this.machines = new ArrayList<MachineControl>(pool.size());
+		for (Hardware hardware : this.pool) this.machines.add(new MachineControl(hardware));
+
+	}
+
+
+	//=====================================================================
+	//	=>	PUBLIC API
+	//=====================================================================
+	/**
+	 * Assign every job of a work order to a machine without running anything
+	 * @param workOrder - the jobs to schedule
+	 * @return - the schedule, ordered by machine and then by predicted start
+	 */
+	public List<ScheduledJob> plan(List<RecipeJob> workOrder) {
+
+		//	look up every runtime before assigning anything, so a bad recipe rejects the whole work order
+		List<ScheduledJob> pending = new ArrayList<ScheduledJob>(workOrder.size());
+		for (RecipeJob job : workOrder) {
+			try { pending.add(new ScheduledJob(job, MachineControl.runtimeForRecipe(job.getRecipeFilePath()) + 1)); }
+			catch (IOException e) { throw new IllegalArgumentException("failed to read recipe from file: " + job.getRecipeFilePath()); }
+		}
+
+		//	pack one priority class at a time, highest first
+		int[] freeAt = new int[this.pool.size()];
+		for (RecipeJob.Priority priority : RecipeJob.Priority.values()) {
+
+			List<ScheduledJob> inClass = new ArrayList<ScheduledJob>();
+			for (ScheduledJob scheduled : pending) if (scheduled.job.getPriority() == priority) inClass.add(scheduled);
+			if (inClass.isEmpty()) continue;
+
+			//	longest processing time first, unless that breaks a deadline
+			Collections.sort(inClass, LONGEST_FIRST);
+			if (!assign(inClass, freeAt.clone())) Collections.sort(inClass, EARLIEST_DEADLINE_FIRST);
+			assign(inClass, freeAt);
+		}
+
+		Collections.sort(pending, new Comparator<ScheduledJob>() {
+			@Override
+			public int compare(ScheduledJob a, ScheduledJob b) {
+				if (a.machineIndex != b.machineIndex) return a.machineIndex - b.machineIndex;
+				return a.predictedStartSeconds - b.predictedStartSeconds;
+			}
+		});
+
+		return pending;
+
+	}
+
+
+	/**
+	 * Plan a work order and run it, one thread per machine
+	 * Blocks until every job has finished
+	 * @param workOrder - the jobs to run
+	 * @return - the schedule, with actual completion times and results filled in
+	 */
+	public List<ScheduledJob> execute(List<RecipeJob> workOrder) {
+
+		final List<ScheduledJob> schedule = this.plan(workOrder);
+		final long startNanos = System.nanoTime();
+
+		List<Callable<Void>> machineQueues = new ArrayList<Callable<Void>>(this.machines.size());
+		for (int i = 0; i < this.machines.size(); i++) {
+
+			final MachineControl mc = this.machines.get(i);
+			final int machineIndex = i;
+
+			machineQueues.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (ScheduledJob scheduled : schedule) {
+						if (scheduled.machineIndex != machineIndex) continue;
+						scheduled.result = mc.runMachineFromRecipe(scheduled.job.getRecipeFilePath());
+						scheduled.actualFinishMillis = (System.nanoTime() - startNanos) / 1000000L;
+					}
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.machines.size());
+		try {
+			for (Future<Void> f : executor.invokeAll(machineQueues)) f.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while running work order");
+		}
+		catch (ExecutionException e) { throw new IllegalStateException("machine failed while running work order", e.getCause()); }
+		finally { executor.shutdown(); }
+
+		return schedule;
+
+	}
+
+
+	/**
+	 * Build a human readable comparison of predicted and actual completion, for sizing the fleet
+	 * @param schedule - a schedule returned by plan or execute
+	 * @return - one line per job followed by the predicted and actual makespan
+	 */
+	public String report(List<ScheduledJob> schedule) {
+
+		StringBuilder sb = new StringBuilder(128 + 128 * schedule.size());
+		int predictedMakespan = 0;
+		long actualMakespan = 0;
+		int missedDeadlines = 0;
+
+		for (ScheduledJob scheduled : schedule) {
+
+			long msPerSecond = this.pool.get(scheduled.machineIndex).getMillisecondsPerSecond();
+
+			sb.append("machine ").append(scheduled.machineIndex)
+				.append(" | ").append(scheduled.job.getRecipeFilePath())
+				.append(" | ").append(scheduled.job.getPriority())
+				.append(" | predicted ").append(scheduled.predictedStartSeconds).append("-").append(scheduled.predictedFinishSeconds).append(" s")
+				.append(" (").append(scheduled.predictedFinishSeconds * msPerSecond).append(" ms)");
+
+			if (scheduled.job.hasDeadline()) {
+				sb.append(" | deadline ").append(scheduled.job.getDeadlineSeconds()).append(" s");
+				if (!scheduled.meetsDeadline()) {
+					sb.append(" MISSED");
+					missedDeadlines++;
+				}
+			}
+
+			if (scheduled.hasRun()) {
+				sb.append(" | actual ").append(scheduled.actualFinishMillis).append(" ms ").append(scheduled.result.getStatus());
+				actualMakespan = Math.max(actualMakespan, scheduled.actualFinishMillis);
+			}
+			sb.append("\n");
+
+			predictedMakespan = Math.max(predictedMakespan, scheduled.predictedFinishSeconds);
+		}
+
+		sb.append("Predicted makespan: ").append(predictedMakespan).append(" s on ").append(this.pool.size()).append(" machines\n");
+		sb.append("Actual makespan: ").append(actualMakespan).append(" ms\n");
+		sb.append("Missed deadlines: ").append(missedDeadlines).append("\n");
+
+		return sb.toString();
+
+	}
+
+
+	//=====================================================================
+	//	=>	PRIVATE METHODS
+	//=====================================================================
+	private static final Comparator<ScheduledJob> LONGEST_FIRST = new Comparator<ScheduledJob>() {
+		@Override
+		public int compare(ScheduledJob a, ScheduledJob b) { return b.durationSeconds - a.durationSeconds; }
+	};
+
+
+	//	jobs with a deadline by deadline, then jobs without a deadline longest first
+	private static final Comparator<ScheduledJob> EARLIEST_DEADLINE_FIRST = new Comparator<ScheduledJob>() {
+		@Override
+		public int compare(ScheduledJob a, ScheduledJob b) {
+			if (a.job.getDeadlineSeconds() != b.job.getDeadlineSeconds()) return a.job.getDeadlineSeconds() < b.job.getDeadlineSeconds() ? -1 : 1;
+			return b.durationSeconds - a.durationSeconds;
+		}
+	};
+
+
+	/**
+	 * Give each job, in order, to the machine that will be free soonest, ties going to the lowest index
+	 * @param jobs - the jobs to assign, their machine and predicted times are overwritten
+	 * @param freeAt - the second each machine becomes free, updated as jobs are assigned
+	 * @return - true if every job with a deadline is predicted to meet it
+	 */
+	private static boolean assign(List<ScheduledJob> jobs, int[] freeAt) {
+
+		boolean meetsDeadlines = true;
+
+		for (ScheduledJob scheduled : jobs) {
+
+			int machine = 0;
+			for (int i = 1; i < freeAt.length; i++) if (freeAt[i] < freeAt[machine]) machine = i;
+
+			scheduled.machineIndex = machine;
+			scheduled.predictedStartSeconds = freeAt[machine];
+			scheduled.predictedFinishSeconds = freeAt[machine] + scheduled.durationSeconds;
+			freeAt[machine] = scheduled.predictedFinishSeconds;
+
+			if (!scheduled.meetsDeadline()) meetsDeadlines = false;
+		}
+
+		return meetsDeadlines;
+
+	}
+
+
+	/**
+	 * A job together with where and when it was scheduled to run, and how it actually went
+	 */
+	public static class ScheduledJob {
+
+		private final RecipeJob job;
+		private final int durationSeconds;
+		private int machineIndex;
+		private int predictedStartSeconds;
+		private int predictedFinishSeconds;
+		private long actualFinishMillis = -1;		//	-1 until the job has run
+		private RunResult result;					//	null until the job has run
+
+		ScheduledJob(RecipeJob job, int durationSeconds) {
+			this.job = job;
+			this.durationSeconds = durationSeconds;
+		}
+
+		public RecipeJob getJob() { return this.job; }
+		public int getMachineIndex() { return this.machineIndex; }
+		public int getPredictedStartSeconds() { return this.predictedStartSeconds; }
+		public int getPredictedFinishSeconds() { return this.predictedFinishSeconds; }
+		public long getActualFinishMillis() { return this.actualFinishMillis; }
+		public RunResult getResult() { return this.result; }
+		public boolean hasRun() { return this.actualFinishMillis >= 0; }
+		public boolean meetsDeadline() { return this.predictedFinishSeconds <= this.job.getDeadlineSeconds(); }
+
+	}
+
+}
@@ -17,6 +17,9 @@ import java.util.Random;
  * 4. Given a set of control values and a time (seconds), set the hardware to the control values for the given number of seconds.
  * 5. Turn the hardware off (Stop).
  *
+ * The values written to the log file are the values the subsystems deliver, as simulated by a HardwareModel
+ * The default model delivers exactly the control values and each second of work takes one second of wall clock time
+ *
  */
 public class Hardware {
 	
@@ -28,6 +31,11 @@ public class Hardware {
 	private int currentAmps;			//	current in the system, measured in amps
 	private boolean isOnline;			//	boolean indicating whether the machine is on or off
 	private String currentLogFileName;	//	the name of the active logfile
+	private int measuredAirPressurePSI;	//	air pressure logged in the last second of work, measured in PSI
+	private int measuredCurrentAmps;	//	current logged in the last second of work, measured in amps
+	private final HardwareModel model;	//	simulates how the subsystems respond to their control values
+	private final long millisecondsPerSecond;	//	wall clock time taken by one second of work, 0 runs as fast as possible
+	private long firstTickNanos;		//	System.nanoTime() when this hardware first logged a second of work, 0 until then
 	
 	
 	//=====================================================================
@@ -48,14 +56,31 @@ public class Hardware {
 	//=====================================================================
 	//	=>	CONSTRUCTOR
 	//=====================================================================
-	public Hardware() {
+	/**
+	 * @param model - simulates how the subsystems respond to their control values
+	 * @param millisecondsPerSecond - wall clock time taken by one second of work, 0 removes the delay entirely
+	 */
+	public Hardware(HardwareModel model, long millisecondsPerSecond) {
+		
+		if (millisecondsPerSecond < 0) throw new IllegalArgumentException(millisecondsPerSecond + " - milliseconds per second must not be negative");
+		
 		this.isOnline = false;
 		this.airPressuePSI = 0;
 		this.currentAmps = 0;
+		this.measuredAirPressurePSI = 0;
+		this.measuredCurrentAmps = 0;
 		this.currentLogFileName = "";
+		this.model = model;
+		this.millisecondsPerSecond = millisecondsPerSecond;
 	}
 	
 	
+	public Hardware(HardwareModel model) { this(model, SECONDS_PER_MILLISECOND); }
+	
+	
+	public Hardware() { this(new IdealHardwareModel()); }
+	
+	
 	/**
 	 * Method that accepts 1 to N control parameters
 	 * @param controlParameters - n parameters used to control the machine
@@ -123,11 +148,17 @@ public class Hardware {
 		
 		
 		//		simulate machine working
-		try { Thread.sleep(1 * SECONDS_PER_MILLISECOND); } 
-		catch (InterruptedException e) {
-			System.out.println("Hardware failure: machine failed to work for the alloted time");
-			return false;
-		} 
+		if (this.millisecondsPerSecond > 0) {
+			try { Thread.sleep(this.millisecondsPerSecond); } 
+			catch (InterruptedException e) {
+				System.out.println("Hardware failure: machine failed to work for the alloted time");
+				return false;
+			} 
+		}
+		
+		//		simulate the subsystems responding to the control values
+		this.measuredAirPressurePSI = limit(this.model.respond(INPUT_KEY_FOR_AIR_PRESSURE, this.airPressuePSI), MIN_AIR_PRESSURE_PSI, MAX_AIR_PRESSURE_PSI);
+		this.measuredCurrentAmps = limit(this.model.respond(INPUT_KEY_FOR_ELECTRICAL_CURRENT, this.currentAmps), MIN_CURRENT_AMPS, MAX_CURRENT_AMPS);
 		
 		//		prepare to write to the log file
 		boolean success = true;
@@ -144,7 +175,8 @@ public class Hardware {
 		try {
 			
 			if (currentSecond != 0) bw.write("\n");
-			bw.write(currentSecond+","+this.airPressuePSI+","+this.currentAmps);
+			bw.write(currentSecond+","+this.measuredAirPressurePSI+","+this.measuredCurrentAmps);
+			if (this.firstTickNanos == 0) this.firstTickNanos = System.nanoTime();
 			
 					
 		} catch (IOException e) {
@@ -216,6 +248,30 @@ public class Hardware {
 	public int getCurrent() { return this.currentAmps; }
 	
 	
+	/**
+	 * @return - the air pressure delivered in the last second of work, as simulated by the hardware model
+	 */
+	public int getMeasuredAirPressure() { return this.measuredAirPressurePSI; }
+	
+	
+	/**
+	 * @return - the current delivered in the last second of work, as simulated by the hardware model
+	 */
+	public int getMeasuredCurrent() { return this.measuredCurrentAmps; }
+	
+	
+	/**
+	 * @return - System.nanoTime() when this hardware first logged a second of work, 0 if it has not yet, used for startup measurements
+	 */
+	public long getFirstTickNanos() { return this.firstTickNanos; }
+	
+	
+	/**
+	 * @return - wall clock time taken by one second of work, in milliseconds
+	 */
+	public long getMillisecondsPerSecond() { return this.millisecondsPerSecond; }
+	
+	
 	/**
 	 * test if the current hardware instance is running
 	 * @return - true if the hardware is running, false otherwise
@@ -283,6 +339,9 @@ public class Hardware {
 		this.currentLogFileName = "";
 		this.airPressuePSI = MIN_AIR_PRESSURE_PSI;
 		this.currentAmps = MIN_CURRENT_AMPS;
+		this.measuredAirPressurePSI = MIN_AIR_PRESSURE_PSI;
+		this.measuredCurrentAmps = MIN_CURRENT_AMPS;
+		this.model.reset();
 		
 		return logFileName;
 		
@@ -290,5 +349,15 @@ public class Hardware {
 	
 	
 	public String getLogFileName() { return this.currentLogFileName; }
+	
+	
+	//=====================================================================
+	//	=>	PRIVATE METHODS
+	//=====================================================================
+	private static int limit(int value, int minimum, int maximum) {
+		if (value > maximum) return maximum;
+		if (value < minimum) return minimum;
+		return value;
+	}
 
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package phfmm;
+
+/**
+ * 
+ * @author Joseph Malandruccolo
+ * Strategy used by the Hardware layer to simulate how a subsystem responds to its control value
+ * Each second of work the Hardware asks its model what value to log for each subsystem
+ * A model instance belongs to exactly one Hardware instance and keeps any process state itself, per subsystem,
+ * so the value it logs never feeds back into that state
+ *
+ */
+public interface HardwareModel {
+	
+	/**
+	 * Simulate one second of a subsystem responding to its control value
+	 * @param controlKey - the Hardware input key of the subsystem, e.g. Hardware.INPUT_KEY_FOR_AIR_PRESSURE
+	 * @param setpoint - the control value requested for this second, already limited to the hardware minimum and maximum
+	 * @return - the value logged for the subsystem this second
+	 */
+	int respond(String controlKey, int setpoint);
+	
+	
+	/**
+	 * The hardware has stopped, every subsystem returns to rest at its minimum value
+	 */
+	void reset();
+
+}
@@ -0,0 +1,19 @@
+package phfmm;
+
+/**
+ * 
+ * @author Joseph Malandruccolo
+ * Hardware model in which every subsystem delivers exactly its control value
+ * This is the default model, and the only one whose log files match the reference files exactly
+ *
+ */
+public class IdealHardwareModel implements HardwareModel {
+	
+	@Override
+	public int respond(String controlKey, int setpoint) { return setpoint; }
+	
+	
+	@Override
+	public void reset() { }
+
+}
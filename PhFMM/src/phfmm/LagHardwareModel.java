@@ -0,0 +1,59 @@
+package phfmm;
+
+/**
+ * 
+ * @author Joseph Malandruccolo
+ * Hardware model in which every subsystem follows a first order response
+ * Each second the process value closes a fixed fraction of the gap between its previous value and the control value
+ * The process value is kept unrounded per subsystem so it always converges, only the logged value is rounded
+ *
+ */
+public class LagHardwareModel implements HardwareModel {
+	
+	//=====================================================================
+	//	=>	PROPERTIES
+	//=====================================================================
+	private final double responseFraction;		//	fraction of the gap closed each second, 1 behaves like the ideal model
+	private double airPressure;					//	unrounded air pressure process value, 0 at rest
+	private double current;						//	unrounded current process value, 0 at rest
+	
+	
+	//=====================================================================
+	//	=>	CONSTRUCTOR
+	//=====================================================================
+	/**
+	 * @param responseFraction - fraction of the gap to the control value closed each second, in (0, 1]
+	 */
+	public LagHardwareModel(double responseFraction) {
+		
+		if (responseFraction <= 0 || responseFraction > 1) throw new IllegalArgumentException(responseFraction + " - response fraction must be in (0, 1]");
+		this.responseFraction = responseFraction;
+		this.airPressure = 0;
+		this.current = 0;
+		
+	}
+	
+	
+	@Override
+	public int respond(String controlKey, int setpoint) {
+		
+		if (controlKey.equals(Hardware.INPUT_KEY_FOR_AIR_PRESSURE)) {
+			this.airPressure += (setpoint - this.airPressure) * this.responseFraction;
+			return (int) Math.round(this.airPressure);
+		}
+		else if (controlKey.equals(Hardware.INPUT_KEY_FOR_ELECTRICAL_CURRENT)) {
+			this.current += (setpoint - this.current) * this.responseFraction;
+			return (int) Math.round(this.current);
+		}
+		else throw new IllegalArgumentException(controlKey + " - is not a subsystem of this hardware");
+		
+	}
+	
+	
+	@Override
+	public void reset() {
+		this.airPressure = 0;
+		this.current = 0;
+	}
+
+}
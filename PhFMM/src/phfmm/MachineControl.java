@@ -4,9 +4,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Scanner;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 
@@ -31,6 +34,7 @@ public class MachineControl {
 	private static final int kCONSTANT_CURRENT_PRESSURE_CEILING = 50;
 	private static final int kCONSTANT_CURRENT_PRESSURE_FLOOR = 10;
 	private static final int kRAMP_PRESSURE_CEILING = 100;
+	private static final int kWARM_UP_PART_SIZE = 50;		//	a part size every machine mode accepts
 	
 	public static final String kCONSTANT_PRESSURE_RECIPE_KEY = "ConstantPressure";
 	public static final String kCONSTANT_CURRENT_RECIPE_KEY = "ConstantCurrent";
@@ -48,13 +52,25 @@ public class MachineControl {
 	//=====================================================================
 	private Hardware underlyingHardware;
 	
+	//	parsed reference files keyed by path, shared by every MachineControl in the JVM
+	private static final ConcurrentHashMap<String, CachedReference> referenceCache = new ConcurrentHashMap<String, CachedReference>();
+	
 	
 	
 	//=====================================================================
 	//	=>	CONSTRUCTOR
 	//=====================================================================
 	public MachineControl() {
-		this.underlyingHardware = new Hardware();
+		this(new Hardware());
+	}
+	
+	
+	/**
+	 * Control a given instance of hardware, e.g. one built with a simulation model
+	 * @param underlyingHardware - the hardware this layer controls
+	 */
+	public MachineControl(Hardware underlyingHardware) {
+		this.underlyingHardware = underlyingHardware;
 	}
 	
 	
@@ -79,8 +95,8 @@ public class MachineControl {
 		}
 		*/
 		
-		sb.append("Pressue: " + this.underlyingHardware.getAirPressure() + " PSI\n");
-		sb.append("Current: " + this.underlyingHardware.getCurrent() + " amps\n");
+		sb.append("Pressue: ").append(this.underlyingHardware.getAirPressure()).append(" PSI\n");
+		sb.append("Current: ").append(this.underlyingHardware.getCurrent()).append(" amps\n");
 		
 		return sb.toString();
 	}
@@ -102,37 +118,32 @@ public class MachineControl {
 	/**
 	 * Run the underlying hardware at for T seconds at its current control settings
 	 * @param T - the number of seconds to run the hardware
-	 * @return - a human readable result message
+	 * @return - the result of the run, manual runs are not validated and are a good part if every second was logged
 	 */
-	public String runMachineForTsecondsAtCurrentSettings(int T) {
+	public RunResult runMachineForTsecondsAtCurrentSettings(int T) {
+		
+		RunResult result = new RunResult(this.underlyingHardware.getAirPressure(), this.underlyingHardware.getCurrent());
 		
 		boolean started = this.underlyingHardware.startHardware();
-		if (!started) return new String("Hardware failed to start");
+		if (!started) return result.fail(RunResult.Status.HARDWARE_FAILURE, "Hardware failed to start");
 		
 		boolean success = this.underlyingHardware.work(T);
-		if (success) {
-			
-			String result = new String("Good part! See log file named '" + this.underlyingHardware.getLogFileName() + "' for details\n");
-			this.underlyingHardware.stopHardware();
-			return result;
-			
-		}
-		else {
-			
-			String result = new String("Bad part - attempted to write to log file named '" + this.underlyingHardware.getLogFileName() + "'\n");
-			this.underlyingHardware.stopHardware();
-			return result;
-			
-		}
+		String logfile = this.underlyingHardware.stopHardware();
+		
+		if (success) return result.finish(RunResult.Status.GOOD_PART, logfile);
+		else return result.finishBadPart(logfile, null);
+		
 	}
 	
 	
-	@SuppressWarnings("resource")
-	public String runMachineFromRecipe(String recipeFilePath) {
-		
-		File recipeFile = new File(recipeFilePath);
+	/**
+	 * Run the recipe in a given file and validate the log file against the recipe's reference file
+	 * @param recipeFilePath - path to the recipe
+	 * @return - the result of the run
+	 */
+	public RunResult runMachineFromRecipe(String recipeFilePath) {
 		
-		BufferedReader br = null;
+		RunResult result = new RunResult(recipeFilePath);
 		
 		try {
 			
@@ -141,12 +152,16 @@ public class MachineControl {
 			
 			//	parse the single line
 			String singleLine;
-			br = new BufferedReader(new FileReader(recipeFile));
-			singleLine = br.readLine();
+			BufferedReader br = new BufferedReader(new FileReader(new File(recipeFilePath)));
+			try { singleLine = br.readLine(); }
+			finally { br.close(); }
+			
+			if (singleLine == null) return result.fail(RunResult.Status.INVALID_RECIPE, "empty recipe file");
 			String[] inputs = singleLine.split(",");
+			if (inputs.length < 3) return result.fail(RunResult.Status.INVALID_RECIPE, "expected recipe name, machine mode and part size");
 			String referenceFileName = inputs[0];
 			String recipe = inputs[1];
-			int partSize = Integer.parseInt(inputs[2]);
+			int partSize = Integer.parseInt(inputs[2].trim());
 			
 			
 			//	call the appropriate method
@@ -156,19 +171,98 @@ public class MachineControl {
 			else throw new IllegalArgumentException(recipe + " - is an invalid recipe");
 			
 			//	validate log file with reference file
-			boolean success = validateLogFileWithReferenceFile(logfile, referenceFileName);
+			RunResult.Mismatch mismatch = validateLogFileWithReferenceFile(logfile, referenceFileName);
 			
-			//	print a message depending on the results of validation
-			if (success) return new String("good part See log file named '" + logfile + "' for details\n");
-			else return new String ("bad part");
+			if (mismatch == null) return result.finish(RunResult.Status.GOOD_PART, logfile);
+			else return result.finishBadPart(logfile, mismatch);
 			
 		}
 		catch (IOException e) {
-			return new String("Failed to read recipe from file, please check file format");
+			return result.fail(RunResult.Status.INVALID_RECIPE, "Failed to read recipe from file, please check file format");
+		}
+		catch (IllegalArgumentException e) {
+			return result.fail(RunResult.Status.INVALID_RECIPE, e.getMessage());
+		}
+		catch (IllegalStateException e) {
+			return result.fail(RunResult.Status.HARDWARE_FAILURE, e.getMessage());
 		}
 	}
 	
 	
+	/**
+	 * Look up how long a machine mode runs
+	 * @param recipe - the machine mode named in a recipe file
+	 * @return - the runtime of the mode, in seconds
+	 */
+	public static int runtimeForMode(String recipe) {
+		
+		if (recipe.equals(kCONSTANT_PRESSURE_RECIPE_KEY)) return kCONSTANT_PRESSURE_RUNTIME;
+		else if (recipe.equals(kCONSTANT_CURRENT_RECIPE_KEY)) return kCONSTANT_CURRENT_RUNTIME;
+		else if (recipe.equals(kRAMP_RECIPE_KEY)) return kRAMP_RUNTIME;
+		else throw new IllegalArgumentException(recipe + " - is an invalid recipe");
+		
+	}
+	
+	
+	/**
+	 * Read a recipe file and look up how long it runs, without running it
+	 * @param recipeFilePath - path to the recipe
+	 * @return - the runtime of the recipe's machine mode, in seconds
+	 * @throws IOException if the recipe cannot be read
+	 */
+	public static int runtimeForRecipe(String recipeFilePath) throws IOException {
+		
+		BufferedReader br = new BufferedReader(new FileReader(new File(recipeFilePath)));
+		try {
+			String singleLine = br.readLine();
+			if (singleLine == null) throw new IOException("empty recipe file: " + recipeFilePath);
+			String[] inputs = singleLine.split(",");
+			if (inputs.length < 3) throw new IOException("malformed recipe file: " + recipeFilePath);
+			return runtimeForMode(inputs[1]);
+		}
+		finally { br.close(); }
+		
+	}
+	
+	
+	/**
+	 * Pay the first-call costs of a run before the first real job arrives
+	 * Every reference file in kREFERENCE_FILE_PATH is parsed into the reference cache,
+	 * and each machine mode performs one second of work on scratch hardware with no delay, whose log files are then deleted
+	 * @return - the number of reference files cached
+	 */
+	public static int warmUp() {
+		
+		int cachedReferences = 0;
+		File[] referenceFiles = new File(kREFERENCE_FILE_PATH).listFiles();
+		if (referenceFiles != null) {
+			for (File reference : referenceFiles) {
+				if (!reference.getName().endsWith(kREFERENCE_FILE_SUFFIX)) continue;
+				try {
+					referenceRecords(kREFERENCE_FILE_PATH + reference.getName());
+					cachedReferences++;
+				}
+				catch (IllegalArgumentException e) { System.out.println("Skipping unreadable reference file: " + reference.getName()); }
+			}
+		}
+		
+		MachineControl scratch = new MachineControl(new Hardware(new IdealHardwareModel(), 0));
+		String[] logfiles = {
+				scratch.constantPressueMode(0, kWARM_UP_PART_SIZE),
+				scratch.constantCurrentMode(0, kWARM_UP_PART_SIZE),
+				scratch.rampMode(0, kWARM_UP_PART_SIZE)
+		};
+		for (String logfile : logfiles) {
+			try { readRecords(logfile); }
+			catch (IOException e) { System.out.println("Warm up failed to read log file: " + logfile); }
+			new File(logfile).delete();
+		}
+		
+		return cachedReferences;
+		
+	}
+	
+	
 	//=====================================================================
 	//	=>	PRIVATE METHODS
 	//=====================================================================
@@ -273,75 +367,131 @@ public class MachineControl {
 		 
 	 }
 	 
-	 private boolean validateLogFileWithReferenceFile(String logfile, String recipeName) {
+	 /**
+	  * Compare the values in a log file with the values in a recipe's reference file, row by row
+	  * @param logfile - the log file produced by a run
+	  * @param recipeName - the recipe name, used to locate the reference file
+	  * @return - the first difference found, or null if every value matches
+	  * @throws IllegalArgumentException if the reference file cannot be read, a recipe problem
+	  * @throws IllegalStateException if the log file cannot be read, a hardware problem
+	  */
+	 private RunResult.Mismatch validateLogFileWithReferenceFile(String logfile, String recipeName) {
 		 
 		 //	get records from reference file
 		 String fullPath = kREFERENCE_FILE_PATH + recipeName + kREFERENCE_FILE_SUFFIX;
+		 List<Record> referenceRecords = referenceRecords(fullPath);
 		 
-		 File reference = new File(fullPath);
 		 
-		 LinkedList<Record> referenceRecords = new LinkedList<Record>();
-		 LinkedList<Record> logRecords = new LinkedList<Record>();
+		 //	get records from log file
+		 List<Record> logRecords;
+		 try { logRecords = readRecords(logfile); }
+		 catch (Exception e) { throw new IllegalStateException("failed to read log file at path: " + logfile); }
 		 
-		 try {
-			 Scanner s = new Scanner(reference);
-			 String row;
-			 String[] parsedRow;
-			 
-			 while (s.hasNextLine()) {
-				 row = s.nextLine();
-				 //System.out.println(row);
-				 parsedRow = row.split(",");
-				 referenceRecords.addLast(new Record(parsedRow[0], parsedRow[1], parsedRow[2]));
+		 
+		 if (logRecords.size() != referenceRecords.size()) return RunResult.Mismatch.ofRowCount(referenceRecords.size(), logRecords.size());
+		 
+		 //	a part is bad as soon as any value in any row differs
+		 Iterator<Record> logIterator = logRecords.iterator();
+		 Iterator<Record> referenceIterator = referenceRecords.iterator();
+		 for (int i = 0; logIterator.hasNext(); i++) {
+			 Record logged = logIterator.next();
+			 Record expected = referenceIterator.next();
+			 if (logged.getCurrent() != expected.getCurrent() 
+					 || logged.getPressure() != expected.getPressure() 
+					 || logged.getSecond() != expected.getSecond()) {
+				 return RunResult.Mismatch.ofRow(i, expected.getSecond(), expected.getPressure(), expected.getCurrent(), 
+						 logged.getSecond(), logged.getPressure(), logged.getCurrent());
 			 }
 		 }
+		 
+		 return null;
+	 }
+	 
+	 
+	 /**
+	  * Get the records of a reference file, reading and parsing the file again only when it has changed
+	  * A file counts as changed when its last modified time or its size differs from when it was cached
+	  * @param fullPath - path to the reference file
+	  * @return - the records of the reference file, which must not be modified
+	  */
+	 private static List<Record> referenceRecords(String fullPath) {
+		 
+		 File reference = new File(fullPath);
+		 long lastModified = reference.lastModified();
+		 long length = reference.length();
+		 
+		 CachedReference cached = referenceCache.get(fullPath);
+		 if (cached != null && cached.lastModified == lastModified && cached.length == length) return cached.records;
+		 
+		 try { cached = new CachedReference(lastModified, length, Collections.unmodifiableList(readRecords(fullPath))); }
 		 catch (Exception e) { throw new IllegalArgumentException("failed to open reference file at path: " + fullPath); }
 		 
+		 referenceCache.put(fullPath, cached);
+		 return cached.records;
 		 
-		 //	get records from log file
-		 File l = new File(logfile);
+	 }
+	 
+	 
+	 /**
+	  * Parse a DAS or reference file into records, blank lines are skipped
+	  * @param path - path to the file
+	  * @return - one record per row
+	  * @throws IOException if the file cannot be read or a row does not have three values
+	  */
+	 private static ArrayList<Record> readRecords(String path) throws IOException {
+		 
+		 ArrayList<Record> records = new ArrayList<Record>(32);
+		 BufferedReader br = new BufferedReader(new FileReader(path));
 		 
 		 try {
-			 Scanner scn = new Scanner(l);
 			 String row;
-			 
-			 while (scn.hasNextLine()) {
-				 row = scn.nextLine();
-				 //System.out.println(row);
-				 String[] parsedRow = row.split(",");
-				 logRecords.addLast(new Record(parsedRow[0], parsedRow[1], parsedRow[2]));
+			 while ((row = br.readLine()) != null) {
+				 
+				 if (row.trim().isEmpty()) continue;
+				 
+				 //	split on commas by hand, the files are tiny and this is on the path of every validated part
+				 int firstComma = row.indexOf(',');
+				 int secondComma = row.indexOf(',', firstComma + 1);
+				 if (firstComma < 0 || secondComma < 0) throw new IOException("expected three values in row: " + row);
+				 
+				 records.add(new Record(row.substring(0, firstComma), row.substring(firstComma + 1, secondComma), row.substring(secondComma + 1)));
 			 }
 		 }
-		 catch (Exception e) { throw new IllegalArgumentException("failed to open reference file"); }
+		 finally { br.close(); }
 		 
+		 return records;
 		 
-		 if (logRecords.size() != referenceRecords.size()) return false;
-		 else {
-			 
-			 //	 a more efficient way to iterate would be to use an iterator
-			 for (int i = 0; i < logRecords.size(); i ++) {
-				 if (logRecords.get(i).current != referenceRecords.get(i).getCurrent() 
-						 && logRecords.get(i).getPressure() != referenceRecords.get(i).getPressure() 
-						 && logRecords.get(i).getSecond() != referenceRecords.get(i).getSecond()) {
-					 return false;
-				 }
-			 }
-			 
-			 return true;
-			 
+	 }
+	 
+	 
+	 /**
+	  * The parsed records of a reference file, with the file attributes they were read at
+	  */
+	 static class CachedReference {
+		 
+		 final long lastModified;
+		 final long length;
+		 final List<Record> records;
+		 
+		 CachedReference(long lastModified, long length, List<Record> records) {
+			 this.lastModified = lastModified;
+			 this.length = length;
+			 this.records = records;
 		 }
+		 
 	 }
 	 
-	 class Record {
+	 
+	 static class Record {
 		 
 		 int second;
 		 int pressure;
 		 int current;
 		 
 		 Record (String second, String pressure, String current) {
-			 this.second = Integer.parseInt(second);
-			 this.pressure = Integer.parseInt(pressure);
-			 this.current = Integer.parseInt(current);
+			 this.second = Integer.parseInt(second.trim());
+			 this.pressure = Integer.parseInt(pressure.trim());
+			 this.current = Integer.parseInt(current.trim());
 		 }
 		 
 		 public int getSecond() { return this.second; }
@@ -0,0 +1,61 @@
+package phfmm;
+
+import java.util.SplittableRandom;
+
+/**
+ * 
+ * @author Joseph Malandruccolo
+ * Hardware model that adds seeded sensor noise on top of another model
+ * The noise only disturbs the logged value, the underlying model keeps its own undisturbed process state
+ * The noise is uniform in [-amplitude, amplitude] and is drawn from a SplittableRandom owned by this model,
+ * so two machines built with the same seed produce the same log files, and machines on different threads never share a generator
+ *
+ */
+public class NoisyHardwareModel implements HardwareModel {
+	
+	//=====================================================================
+	//	=>	PROPERTIES
+	//=====================================================================
+	private final HardwareModel underlyingModel;	//	the model whose response is disturbed
+	private final int amplitude;					//	largest deviation added to a response
+	private final SplittableRandom random;			//	per-machine generator, never shared
+	
+	
+	//=====================================================================
+	//	=>	CONSTRUCTOR
+	//=====================================================================
+	/**
+	 * @param underlyingModel - the model whose response is disturbed
+	 * @param amplitude - largest deviation added to a response, must not be negative
+	 * @param seed - seed for this machine's generator
+	 */
+	public NoisyHardwareModel(HardwareModel underlyingModel, int amplitude, long seed) {
+		
+		if (amplitude < 0) throw new IllegalArgumentException(amplitude + " - noise amplitude must not be negative");
+		this.underlyingModel = underlyingModel;
+		this.amplitude = amplitude;
+		this.random = new SplittableRandom(seed);
+		
+	}
+	
+	
+	/**
+	 * Noise on top of the ideal model
+	 */
+	public NoisyHardwareModel(int amplitude, long seed) { this(new IdealHardwareModel(), amplitude, seed); }
+	
+	
+	@Override
+	public int respond(String controlKey, int setpoint) {
+		
+		int response = this.underlyingModel.respond(controlKey, setpoint);
+		if (this.amplitude == 0) return response;
+		return response + this.random.nextInt(-this.amplitude, this.amplitude + 1);
+		
+	}
+	
+	
+	@Override
+	public void reset() { this.underlyingModel.reset(); }
+
+}
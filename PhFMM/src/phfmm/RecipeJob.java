@@ -0,0 +1,64 @@
+package phfmm;
+
+/**
+ * 
+ * @author Joseph Malandruccolo
+ * A recipe to be run by the FleetScheduler, with the priority class and deadline it must be scheduled by
+ *
+ */
+public class RecipeJob {
+	
+	//=====================================================================
+	//	=>	CONSTANTS
+	//=====================================================================
+	public static final int NO_DEADLINE = Integer.MAX_VALUE;
+	
+	/**
+	 * Priority classes, every job of a higher class is scheduled before any job of a lower class
+	 */
+	public enum Priority { HIGH, NORMAL, LOW }
+	
+	
+	//=====================================================================
+	//	=>	PROPERTIES
+	//=====================================================================
+	private final String recipeFilePath;	//	path to the recipe to run
+	private final Priority priority;		//	priority class of this job
+	private final int deadlineSeconds;		//	latest acceptable completion, in seconds of work from the start of the work order
+	
+	
+	//=====================================================================
+	//	=>	CONSTRUCTOR
+	//=====================================================================
+	/**
+	 * @param recipeFilePath - path to the recipe to run, must not be null
+	 * @param priority - priority class of this job, must not be null
+	 * @param deadlineSeconds - latest acceptable completion in seconds of work, must not be negative, NO_DEADLINE for none
+	 */
+	public RecipeJob(String recipeFilePath, Priority priority, int deadlineSeconds) {
+		
+		if (recipeFilePath == null) throw new IllegalArgumentException("a recipe job needs a recipe file path");
+		if (priority == null) throw new IllegalArgumentException("a recipe job needs a priority class");
+		if (deadlineSeconds < 0) throw new IllegalArgumentException(deadlineSeconds + " - deadline must not be negative");
+		
+		this.recipeFilePath = recipeFilePath;
+		this.priority = priority;
+		this.deadlineSeconds = deadlineSeconds;
+	}
+	
+	
+	public RecipeJob(String recipeFilePath, Priority priority) { this(recipeFilePath, priority, NO_DEADLINE); }
+	
+	
+	public RecipeJob(String recipeFilePath) { this(recipeFilePath, Priority.NORMAL); }
+	
+	
+	//=====================================================================
+	//	=>	GETTERS
+	//=====================================================================
+	public String getRecipeFilePath() { return this.recipeFilePath; }
+	public Priority getPriority() { return this.priority; }
+	public int getDeadlineSeconds() { return this.deadlineSeconds; }
+	public boolean hasDeadline() { return this.deadlineSeconds != NO_DEADLINE; }
+	
+}
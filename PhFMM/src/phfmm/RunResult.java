@@ -0,0 +1,217 @@
+package phfmm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author Joseph Malandruccolo
+ * The outcome of one run of the machine, manual or from a recipe
+ * A RunResult is built by the MachineControl layer and passed unchanged through the UserInterface layer
+ * Nothing is formatted until toString is called, so callers that only need the status pay for no text
+ *
+ */
+public class RunResult {
+
+	//=====================================================================
+	//	=>	CONSTANTS
+	//=====================================================================
+	/**
+	 * GOOD_PART			-	the run finished, and for a recipe the log file matched the reference file
+	 * BAD_PART				-	the run finished but the log file did not match the reference file, or a manual run failed to log
+	 * INVALID_RECIPE		-	the recipe or its reference file could not be read or is not valid
+	 * HARDWARE_FAILURE		-	the hardware failed to start or to perform a second of work
+	 */
+	public enum Status { GOOD_PART, BAD_PART, INVALID_RECIPE, HARDWARE_FAILURE }
+
+	private static final AtomicLong NEXT_RUN_ID = new AtomicLong(1);
+
+
+	//=====================================================================
+	//	=>	PROPERTIES
+	//=====================================================================
+	private final long runId;				//	unique within this JVM, increasing in the order runs start
+	private final String recipeFilePath;	//	null for a manual run
+	private final int airPressure;			//	setpoint of a manual run, in psi
+	private final int current;				//	setpoint of a manual run, in amps
+	private final long startNanos;			//	System.nanoTime() when the run started
+	private Status status;
+	private String logFileName;				//	null if no log file was produced
+	private long endNanos;					//	System.nanoTime() when the run finished
+	private Mismatch mismatch;				//	first difference from the reference file, null unless the part is bad
+	private String failureReason;			//	null unless the run is an invalid recipe or a hardware failure
+
+
+	//=====================================================================
+	//	=>	CONSTRUCTOR
+	//=====================================================================
+	/**
+	 * Start timing a run, the run is completed by one of the package private finish methods
+	 * @param recipeFilePath - path to the recipe being run, null for a manual run
+	 */
+	RunResult(String recipeFilePath) {
+		this(recipeFilePath, 0, 0);
+	}
+
+
+	/**
+	 * Start timing a manual run
+	 * @param airPressure - the air pressure setpoint the run uses, in psi
+	 * @param current - the current setpoint the run uses, in amps
+	 */
+	RunResult(int airPressure, int current) {
+		this(null, airPressure, current);
+	}
+
+
+	private RunResult(String recipeFilePath, int airPressure, int current) {
+		this.runId = NEXT_RUN_ID.getAndIncrement();
+		this.recipeFilePath = recipeFilePath;
+		this.airPressure = airPressure;
+		this.current = current;
+		this.startNanos = System.nanoTime();
+	}
+
+
+	RunResult finish(Status status, String logFileName) {
+		this.endNanos = System.nanoTime();
+		this.status = status;
+		this.logFileName = logFileName;
+		return this;
+	}
+
+
+	RunResult finishBadPart(String logFileName, Mismatch mismatch) {
+		this.mismatch = mismatch;
+		return this.finish(Status.BAD_PART, logFileName);
+	}
+
+
+	RunResult fail(Status status, String failureReason) {
+		this.failureReason = failureReason;
+		return this.finish(status, null);
+	}
+
+
+	//=====================================================================
+	//	=>	GETTERS
+	//=====================================================================
+	public long getRunId() { return this.runId; }
+	public Status getStatus() { return this.status; }
+	public boolean isGoodPart() { return this.status == Status.GOOD_PART; }
+	public boolean isManual() { return this.recipeFilePath == null; }
+	public String getRecipeFilePath() { return this.recipeFilePath; }
+	public int getManualAirPressure() { return this.requireManual().airPressure; }
+	public int getManualCurrent() { return this.requireManual().current; }
+	public String getLogFileName() { return this.logFileName; }
+	public long getStartNanos() { return this.startNanos; }
+	public long getEndNanos() { return this.endNanos; }
+	public long getDurationNanos() { return this.endNanos - this.startNanos; }
+	public Mismatch getMismatch() { return this.mismatch; }
+	public String getFailureReason() { return this.failureReason; }
+
+
+	/**
+	 * @return - a human readable description of the run, worded as the layers above printed it before results were typed
+	 * timings are left out, read them from the getters
+	 */
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder(160);
+
+		if (this.isManual()) {
+			sb.append("Running in manual mode\nCurrent control values:\n");
+			sb.append("Pressue: ").append(this.airPressure).append(" PSI\n");
+			sb.append("Current: ").append(this.current).append(" amps\n\n");
+		}
+		else sb.append("Running recipe saved in file: ").append(this.recipeFilePath).append("\n");
+		sb.append("With result:\n");
+
+		switch (this.status) {
+		case GOOD_PART:
+			if (this.isManual()) {
+				sb.append("Good part! See log file named '").append(this.logFileName).append("' for details\n");
+				break;
+			}
+			sb.append("good part See log file named '").append(this.logFileName).append("' for details\n");
+			break;
+		case BAD_PART:
+			if (this.isManual()) {
+				sb.append("Bad part - attempted to write to log file named '").append(this.logFileName).append("'\n");
+				break;
+			}
+			sb.append("bad part");
+			if (this.mismatch != null) sb.append(" - ").append(this.mismatch);
+			if (this.logFileName != null) sb.append(" - see log file named '").append(this.logFileName).append("'");
+			sb.append("\n");
+			break;
+		default:
+			if (this.isManual()) sb.append(this.failureReason);
+			else sb.append(this.status).append(" - ").append(this.failureReason).append("\n");
+		}
+
+		return sb.toString();
+
+	}
+
+
+	private RunResult requireManual() {
+		if (!this.isManual()) throw new IllegalStateException("run " + this.runId + " ran a recipe and has no manual setpoints");
+		return this;
+	}
+
+
+	/**
+	 * The first place a log file differs from its reference file
+	 * A row of -1 means the files have a different number of rows, and only the row counts are available
+	 * Otherwise only the row and its values are available, and the row counts are -1
+	 */
+	public static class Mismatch {
+
+		private final int row;
+		private final int expectedRows;
+		private final int actualRows;
+		private final int[] expected;	//	second, pressure, current
+		private final int[] actual;		//	second, pressure, current
+
+		private Mismatch(int row, int expectedRows, int actualRows, int[] expected, int[] actual) {
+			this.row = row;
+			this.expectedRows = expectedRows;
+			this.actualRows = actualRows;
+			this.expected = expected;
+			this.actual = actual;
+		}
+
+		static Mismatch ofRowCount(int expectedRows, int actualRows) {
+			return new Mismatch(-1, expectedRows, actualRows, null, null);
+		}
+
+		static Mismatch ofRow(int row, int expectedSecond, int expectedPressure, int expectedCurrent, int actualSecond, int actualPressure, int actualCurrent) {
+			return new Mismatch(row, -1, -1, new int[] { expectedSecond, expectedPressure, expectedCurrent }, new int[] { actualSecond, actualPressure, actualCurrent });
+		}
+
+		public boolean isRowCountMismatch() { return this.row < 0; }
+		public int getRow() { return this.row; }
+		public int getExpectedRows() { return this.expectedRows; }
+		public int getActualRows() { return this.actualRows; }
+		public int getExpectedSecond() { return this.requireRow().expected[0]; }
+		public int getExpectedPressure() { return this.requireRow().expected[1]; }
+		public int getExpectedCurrent() { return this.requireRow().expected[2]; }
+		public int getActualSecond() { return this.requireRow().actual[0]; }
+		public int getActualPressure() { return this.requireRow().actual[1]; }
+		public int getActualCurrent() { return this.requireRow().actual[2]; }
+
+		private Mismatch requireRow() {
+			if (this.isRowCountMismatch()) throw new IllegalStateException("a row count mismatch has no row values, check isRowCountMismatch first");
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			if (this.isRowCountMismatch()) return "expected " + this.expectedRows + " rows but logged " + this.actualRows;
+			return "row " + this.row + " expected " + this.expected[0] + "," + this.expected[1] + "," + this.expected[2]
+					+ " but logged " + this.actual[0] + "," + this.actual[1] + "," + this.actual[2];
+		}
+	}
+
+}
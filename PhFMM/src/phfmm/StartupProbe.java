@@ -0,0 +1,55 @@
+package phfmm;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 
+ * @author Joseph Malandruccolo
+ * Measurement harness for short-lived PhFMM invocations
+ * Runs exactly what 'Driver job <recipe path> --no-delay' runs, and reports, from the moment the JVM started:
+ * 	time-to-first-tick				-	the job's first second of work has been logged
+ * 	time-to-first-validated-part	-	the job's recipe has run and been validated against its reference file
+ * With no delay the numbers are dominated by JVM startup, class loading and first-call costs
+ * 
+ * usage: StartupProbe [recipe path]
+ * Run from the PhFMM directory, like Driver, so the recipe and reference paths resolve
+ *
+ */
+public class StartupProbe {
+	
+	private static final double NANOSECONDS_PER_MILLISECOND = 1000000.0;
+	
+	
+	public static void main(String[] args) {
+		
+		long mainNanos = System.nanoTime();
+		
+		String recipeFilePath = args.length > 0 ? args[0] : UserInterface.RECIPE_1_PATH;
+		
+		Hardware hardware = new Hardware(new IdealHardwareModel(), 0);
+		RunResult result = Driver.runJob(hardware, recipeFilePath);
+		
+		//	the management classes are only loaded after the measured path has finished
+		long nowNanos = System.nanoTime();
+		long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+		
+		System.out.println("JVM start to main: " + format(uptimeMillis, nowNanos, mainNanos) + " ms");
+		if (hardware.getFirstTickNanos() != 0) System.out.println("time-to-first-tick: " + format(uptimeMillis, nowNanos, hardware.getFirstTickNanos()) + " ms");
+		else System.out.println("time-to-first-tick: no tick was logged");
+		System.out.println("time-to-first-validated-part: " + format(uptimeMillis, nowNanos, result.getEndNanos()) + " ms (" + result.getStatus() + ")");
+		
+		//	the probe's log file is not useful DAS output
+		if (result.getLogFileName() != null) new File(result.getLogFileName()).delete();
+		
+	}
+	
+	
+	/**
+	 * Convert a System.nanoTime() reading into milliseconds since the JVM started
+	 */
+	private static String format(long uptimeMillis, long nowNanos, long eventNanos) {
+		return String.format("%.1f", uptimeMillis - (nowNanos - eventNanos) / NANOSECONDS_PER_MILLISECOND);
+	}
+
+}
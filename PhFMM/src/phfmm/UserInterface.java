@@ -31,7 +31,16 @@ public class UserInterface {
 	//	=>	CONSTRUCTOR
 	//=====================================================================
 	public UserInterface() {
-		this.mcLayer = new MachineControl();
+		this(new MachineControl());
+	}
+	
+	
+	/**
+	 * Drive a given machine control layer, e.g. one controlling simulated hardware
+	 * @param mcLayer - the machine control layer this interface drives
+	 */
+	public UserInterface(MachineControl mcLayer) {
+		this.mcLayer = mcLayer;
 	}
 	
 	
@@ -45,11 +54,7 @@ public class UserInterface {
 	 */
 	public String getControlValues() {
 		
-		StringBuffer sb = new StringBuffer();
-		sb.append(new String("Current control values:\n"));
-		sb.append(this.mcLayer.getControlValues());
-		
-		return sb.toString();
+		return "Current control values:\n" + this.mcLayer.getControlValues();
 		
 	}
 	
@@ -73,15 +78,9 @@ public class UserInterface {
 	 * @param secondsToRunAtCurrentSettings
 	 * @return - the result of the run
 	 */
-	public String manualRun(int secondsToRunAtCurrentSettings) {
-		
-		StringBuffer sb = new StringBuffer();
-		sb.append("Running in manual mode\n");
-		sb.append(this.getControlValues());
-		sb.append(new String("\nWith result:\n"));
-		sb.append(this.mcLayer.runMachineForTsecondsAtCurrentSettings(secondsToRunAtCurrentSettings));
+	public RunResult manualRun(int secondsToRunAtCurrentSettings) {
 		
-		return sb.toString();
+		return this.mcLayer.runMachineForTsecondsAtCurrentSettings(secondsToRunAtCurrentSettings);
 		
 	}
 	
@@ -90,16 +89,11 @@ public class UserInterface {
 	 * Execute a recipe on the machine at a given file path
 	 * The file should be located in in the recipeFiles directory
 	 * @param recipeFilePath - path to the recipe
-	 * @return - the result of the run
+	 * @return - the result of the run, call toString for a human readable description
 	 */
-	public String executeRecipe(String recipeFilePath) {
-		
-		StringBuffer sb = new StringBuffer();
-		sb.append("Running recipe saved in file: "+recipeFilePath);
-		sb.append("\nWith result:\n");
-		sb.append(this.mcLayer.runMachineFromRecipe(recipeFilePath));
+	public RunResult executeRecipe(String recipeFilePath) {
 		
-		return sb.toString();
+		return this.mcLayer.runMachineFromRecipe(recipeFilePath);
 		
 	}
 }
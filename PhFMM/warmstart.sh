@@ -0,0 +1,45 @@
+#!/bin/sh
+# Startup-optimized launch of the PhFMM, for cell controllers that start a fresh JVM per job
+# Requires a JDK 13 or later for dynamic class data sharing archives
+#
+#	./warmstart.sh build			compile into bin/phfmm.jar and build bin/phfmm.jsa from a training run of all three recipe modes
+#	./warmstart.sh run <recipe path> [--no-delay]	run one job with the archive, i.e. Driver job <recipe path> [--no-delay]
+#	./warmstart.sh probe [runs]	report time-to-first-tick and time-to-first-validated-part of a --no-delay job, plain and with the archive
+#
+# The run path does not call MachineControl.warmUp: in a fresh JVM per job the first run fills the reference cache anyway,
+# and warming up first only adds the other recipe modes and reference files to the critical path
+# warmUp is for long lived processes, e.g. Driver serve
+# Every launch uses the same JIT settings so the probe measures the archive alone
+#
+# Run from the PhFMM directory so the recipe, reference and DAS paths resolve
+
+cd "$(dirname "$0")" || exit 1
+
+BIN=bin
+JAR=$BIN/phfmm.jar
+ARCHIVE=$BIN/phfmm.jsa
+
+case "$1" in
+	build)
+		rm -rf "$BIN" && mkdir -p "$BIN/classes" || exit 1
+		javac -d "$BIN/classes" src/phfmm/*.java || exit 1
+		# class data sharing only archives classes loaded from jar files
+		jar cf "$JAR" -C "$BIN/classes" . || exit 1
+		java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" phfmm.Driver train > /dev/null || exit 1
+		echo "Built $ARCHIVE"
+		;;
+	run)
+		shift
+		exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -cp "$JAR" phfmm.Driver job "$@"
+		;;
+	probe)
+		RUNS=${2:-5}
+		# plain is an ordinary launch, which still uses the JDK's default class data sharing archive
+		i=0; while [ $i -lt "$RUNS" ]; do echo "plain:"; java -cp "$JAR" phfmm.StartupProbe; i=$((i + 1)); done
+		i=0; while [ $i -lt "$RUNS" ]; do echo "archive:"; java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -cp "$JAR" phfmm.StartupProbe; i=$((i + 1)); done
+		;;
+	*)
+		echo "usage: $0 build | run <recipe path> [--no-delay] | probe [runs]"
+		exit 1
+		;;
+esac